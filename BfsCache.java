@@ -0,0 +1,492 @@
+package demo;
+
+import com.google.common.graph.ImmutableGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Cache of breadth-first search trees, keyed by source node and
+ * direction, so that repeated queries from the same start node turn
+ * into a walk up a parent array instead of a new traversal.
+ *
+ * A full tree costs a traversal of everything reachable, so it is only
+ * built once a source has been asked about TREE_AFTER times. Until
+ * then, path and distance queries are answered by a search that runs
+ * from both ends and stops as soon as they meet; it reuses pooled
+ * arrays instead of allocating per query.
+ *
+ * Each tree is two int arrays over the node ids of a {@link CsrGraph}
+ * snapshot. Trees are evicted least-recently-used first once their
+ * total size passes a byte budget. The cache only accepts an
+ * {@link ImmutableGraph}, so a cached tree can never describe a graph
+ * that has since changed; to query a mutable graph, copy it first and
+ * build a new cache after each round of changes.
+ *
+ * All methods are safe to call from several threads.
+ */
+public class BfsCache {
+
+    /** Deepest neighborhood answered by a bounded search instead of a cached tree */
+    public static final int BOUNDED_HOPS = 2;
+
+    /** Path or distance queries from one source answered before its tree is built */
+    public static final int TREE_AFTER = 16;
+
+    /** Default byte budget for cached trees */
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    /** Which edges a search follows */
+    public enum Direction {
+        /** follow edges from sender to receiver */
+        OUT,
+        /** follow edges from receiver back to sender */
+        IN
+    }
+
+    /** Parent and distance arrays of one search, indexed by node id */
+    public static final class Tree {
+        /** Parent of each node on a shortest path from the source, -1 if none */
+        final int[] parent;
+
+        /** Hop distance of each node from the source, -1 if unreachable */
+        final int[] dist;
+
+        /** Constructor wraps the arrays */
+        Tree(int[] parent, int[] dist) {
+            this.parent = parent;
+            this.dist = dist;
+        }
+
+        /** Returns the approximate heap size of the tree in bytes */
+        long bytes() {
+            return 8L * parent.length + 64;
+        }
+    }
+
+    /** Byte budget for cached trees */
+    private final long maxBytes;
+
+    /** Cached trees, in access order; key is source id * 2 + direction */
+    private final LinkedHashMap<Long, Tree> trees = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Array snapshot of the graph every search runs over */
+    private final CsrGraph csr;
+
+    /** Total size of the cached trees */
+    private long bytes;
+
+    /** Number of queries answered from a cached tree */
+    private long hits;
+
+    /** Number of queries that needed a new search */
+    private long misses;
+
+    /** Number of trees evicted to stay within the budget */
+    private long evictions;
+
+    /** Queries answered without a tree so far, indexed by source id * 2 + direction */
+    private final byte[] searchCounts;
+
+    /** Arrays for two-ended searches, returned to the pool after each one */
+    private final Queue<Scratch> scratchPool = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Per-search arrays for a two-ended search. A node counts as seen
+     * only if its entry holds the current stamp, so the arrays never
+     * need clearing between searches.
+     */
+    private static final class Scratch {
+        /** Stamp of the last search that reached each node from the source */
+        final int[] seenFromSource;
+
+        /** Stamp of the last search that reached each node from the target */
+        final int[] seenFromTarget;
+
+        /** Previous node on the way from the source */
+        final int[] towardSource;
+
+        /** Next node on the way to the target */
+        final int[] towardTarget;
+
+        /** Frontier queue of the source side */
+        final int[] sourceQueue;
+
+        /** Frontier queue of the target side */
+        final int[] targetQueue;
+
+        /** Stamp of the current search */
+        int stamp;
+
+        /** Constructor allocates arrays for n nodes */
+        Scratch(int n) {
+            seenFromSource = new int[n];
+            seenFromTarget = new int[n];
+            towardSource = new int[n];
+            towardTarget = new int[n];
+            sourceQueue = new int[n];
+            targetQueue = new int[n];
+        }
+
+        /** Starts a new search, clearing the stamps only when they wrap */
+        int nextStamp() {
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(seenFromSource, 0);
+                Arrays.fill(seenFromTarget, 0);
+                stamp = 1;
+            }
+            return stamp;
+        }
+    }
+
+    /** Constructor for a cache with the default budget */
+    public BfsCache(ImmutableGraph<String> graph) {
+        this(graph, DEFAULT_MAX_BYTES);
+    }
+
+    /** Constructor for a cache with the given byte budget */
+    public BfsCache(ImmutableGraph<String> graph, long maxBytes) {
+        this.csr = new CsrGraph(graph);
+        this.maxBytes = maxBytes;
+        this.searchCounts = new byte[2 * csr.nodeCount()];
+    }
+
+    /**
+     * Returns the shortest path from startNode to targetNode following
+     * the given direction, or null if there is none or either node is
+     * not in the graph.
+     */
+    public List<String> path(String startNode, String targetNode, Direction direction) {
+        int source = csr.idOf(startNode);
+        int target = csr.idOf(targetNode);
+        if (source < 0 || target < 0) {
+            return null;
+        }
+        Tree tree = repeatedTree(source, direction);
+        if (tree == null) {
+            int[] ids = meet(source, target, direction);
+            if (ids == null) {
+                return null;
+            }
+            List<String> path = new ArrayList<>(ids.length);
+            for (int v : ids) {
+                path.add(csr.name(v));
+            }
+            return path;
+        }
+        if (tree.dist[target] < 0) {
+            return null;
+        }
+        List<String> path = new ArrayList<>(tree.dist[target] + 1);
+        for (int v = target; v >= 0; v = tree.parent[v]) {
+            path.add(csr.name(v));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Returns the hop distance from startNode to targetNode following the
+     * given direction, or -1 if there is no path or either node is not
+     * in the graph.
+     */
+    public int distance(String startNode, String targetNode, Direction direction) {
+        int source = csr.idOf(startNode);
+        int target = csr.idOf(targetNode);
+        if (source < 0 || target < 0) {
+            return -1;
+        }
+        Tree tree = repeatedTree(source, direction);
+        if (tree == null) {
+            int[] ids = meet(source, target, direction);
+            return ids == null ? -1 : ids.length - 1;
+        }
+        return tree.dist[target];
+    }
+
+    /**
+     * Returns the nodes 1..hops steps from startNode following the given
+     * direction, nearest first, or an empty list if the node is not in
+     * the graph.
+     *
+     * Up to BOUNDED_HOPS the answer comes from a search that stops at
+     * that depth, which costs about as much as the neighborhood itself.
+     * Deeper neighborhoods tend to cover much of the graph, so they use
+     * the cached full tree and collect the nodes in one pass over it.
+     */
+    public List<String> neighborhood(String startNode, int hops, Direction direction) {
+        int source = csr.idOf(startNode);
+        if (source < 0) {
+            return new ArrayList<>();
+        }
+        if (hops <= BOUNDED_HOPS) {
+            return boundedSearch(csr, source, hops, direction);
+        }
+
+        // bucket by depth: count each depth, then place nodes at their offsets
+        int[] dist = tree(source, direction).dist;
+        int[] start = new int[hops + 2];
+        for (int d : dist) {
+            if (d >= 1 && d <= hops) {
+                start[d + 1]++;
+            }
+        }
+        for (int d = 1; d <= hops; d++) {
+            start[d + 1] += start[d];
+        }
+        String[] found = new String[start[hops + 1]];
+        for (int v = 0; v < dist.length; v++) {
+            int d = dist[v];
+            if (d >= 1 && d <= hops) {
+                found[start[d]++] = csr.name(v);
+            }
+        }
+        return Arrays.asList(found);
+    }
+
+    /** Breadth-first search from source that stops after the given depth */
+    private static List<String> boundedSearch(CsrGraph g, int source, int hops, Direction direction) {
+        int[] offsets = direction == Direction.OUT ? g.outOffsets() : g.inOffsets();
+        int[] targets = direction == Direction.OUT ? g.outTargets() : g.inSources();
+        List<String> found = new ArrayList<>();
+        BitSet visited = new BitSet();
+        visited.set(source);
+        List<Integer> frontier = new ArrayList<>();
+        frontier.add(source);
+        for (int depth = 0; depth < hops && !frontier.isEmpty(); depth++) {
+            List<Integer> next = new ArrayList<>();
+            for (int u : frontier) {
+                for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                    int v = targets[k];
+                    if (!visited.get(v)) {
+                        visited.set(v);
+                        found.add(g.name(v));
+                        next.add(v);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return found;
+    }
+
+    /**
+     * Returns the tree for a source that has been queried TREE_AFTER
+     * times, or null before that, when a two-ended search is cheaper.
+     */
+    private Tree repeatedTree(int source, Direction direction) {
+        int key = 2 * source + direction.ordinal();
+        synchronized (this) {
+            if (searchCounts[key] < TREE_AFTER && !trees.containsKey((long) key)) {
+                searchCounts[key]++;
+                misses++;
+                return null;
+            }
+        }
+        return tree(source, direction);
+    }
+
+    /**
+     * Returns the node ids of a shortest path from source to target, or
+     * null if there is none. Searches forward from the source and
+     * backward from the target, growing whichever frontier is smaller
+     * by one whole level at a time, and stops at the first node reached
+     * from both sides. Until then no path of length up to the sum of
+     * the two depths exists, so every node met while growing a level
+     * closes a path of the same, shortest, length.
+     */
+    private int[] meet(int source, int target, Direction direction) {
+        if (source == target) {
+            return new int[] {source};
+        }
+        boolean out = direction == Direction.OUT;
+        int[] fwdOffsets = out ? csr.outOffsets() : csr.inOffsets();
+        int[] fwdTargets = out ? csr.outTargets() : csr.inSources();
+        int[] bwdOffsets = out ? csr.inOffsets() : csr.outOffsets();
+        int[] bwdTargets = out ? csr.inSources() : csr.outTargets();
+
+        Scratch s = scratchPool.poll();
+        if (s == null) {
+            s = new Scratch(csr.nodeCount());
+        }
+        try {
+            int stamp = s.nextStamp();
+            int[] fromSource = s.seenFromSource;
+            int[] fromTarget = s.seenFromTarget;
+            int[] sourceQueue = s.sourceQueue;
+            int[] targetQueue = s.targetQueue;
+            int sourceHead = 0;
+            int sourceTail = 0;
+            int targetHead = 0;
+            int targetTail = 0;
+            sourceQueue[sourceTail++] = source;
+            fromSource[source] = stamp;
+            s.towardSource[source] = -1;
+            targetQueue[targetTail++] = target;
+            fromTarget[target] = stamp;
+            s.towardTarget[target] = -1;
+
+            int met = -1;
+            while (met < 0 && sourceHead < sourceTail && targetHead < targetTail) {
+                if (sourceTail - sourceHead <= targetTail - targetHead) {
+                    int end = sourceTail;
+                    for (; sourceHead < end && met < 0; sourceHead++) {
+                        int u = sourceQueue[sourceHead];
+                        for (int k = fwdOffsets[u]; k < fwdOffsets[u + 1]; k++) {
+                            int v = fwdTargets[k];
+                            if (fromSource[v] != stamp) {
+                                fromSource[v] = stamp;
+                                s.towardSource[v] = u;
+                                sourceQueue[sourceTail++] = v;
+                                if (fromTarget[v] == stamp) {
+                                    met = v;
+                                    break;
+                                }
+                            }
+                        }
+                    }
+                } else {
+                    int end = targetTail;
+                    for (; targetHead < end && met < 0; targetHead++) {
+                        int u = targetQueue[targetHead];
+                        for (int k = bwdOffsets[u]; k < bwdOffsets[u + 1]; k++) {
+                            int v = bwdTargets[k];
+                            if (fromTarget[v] != stamp) {
+                                fromTarget[v] = stamp;
+                                s.towardTarget[v] = u;
+                                targetQueue[targetTail++] = v;
+                                if (fromSource[v] == stamp) {
+                                    met = v;
+                                    break;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            if (met < 0) {
+                return null;
+            }
+
+            int before = 0;
+            for (int v = s.towardSource[met]; v >= 0; v = s.towardSource[v]) {
+                before++;
+            }
+            int after = 0;
+            for (int v = s.towardTarget[met]; v >= 0; v = s.towardTarget[v]) {
+                after++;
+            }
+            int[] path = new int[before + 1 + after];
+            int i = before;
+            for (int v = met; v >= 0; v = s.towardSource[v]) {
+                path[i--] = v;
+            }
+            i = before + 1;
+            for (int v = s.towardTarget[met]; v >= 0; v = s.towardTarget[v]) {
+                path[i++] = v;
+            }
+            return path;
+        } finally {
+            scratchPool.add(s);
+        }
+    }
+
+    /** Returns the cached tree for a source, searching and caching it on a miss */
+    private Tree tree(int source, Direction direction) {
+        Long key = 2L * source + direction.ordinal();
+        synchronized (this) {
+            Tree tree = trees.get(key);
+            if (tree != null) {
+                hits++;
+                return tree;
+            }
+            misses++;
+        }
+
+        // search outside the lock so other queries are not held up
+        Tree tree = search(csr, source, direction);
+        synchronized (this) {
+            if (!trees.containsKey(key)) {
+                trees.put(key, tree);
+                bytes += tree.bytes();
+                evict();
+            }
+        }
+        return tree;
+    }
+
+    /** Removes least recently used trees until the budget is met */
+    private void evict() {
+        Iterator<Map.Entry<Long, Tree>> it = trees.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= it.next().getValue().bytes();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /** Breadth-first search over the snapshot arrays */
+    private static Tree search(CsrGraph g, int source, Direction direction) {
+        int n = g.nodeCount();
+        int[] offsets = direction == Direction.OUT ? g.outOffsets() : g.inOffsets();
+        int[] targets = direction == Direction.OUT ? g.outTargets() : g.inSources();
+        int[] parent = new int[n];
+        int[] dist = new int[n];
+        Arrays.fill(parent, -1);
+        Arrays.fill(dist, -1);
+
+        // the queue is an array: each node is enqueued at most once
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+        dist[source] = 0;
+        while (head < tail) {
+            int u = queue[head++];
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                int v = targets[k];
+                if (dist[v] < 0) {
+                    dist[v] = dist[u] + 1;
+                    parent[v] = u;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return new Tree(parent, dist);
+    }
+
+    /** Returns the number of queries answered from the cache */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /** Returns the number of queries that needed a new search */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** Returns the number of trees evicted so far */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /** Returns the number of trees currently cached */
+    public synchronized int size() {
+        return trees.size();
+    }
+
+    /** Returns a one-line summary of the cache counters */
+    @Override
+    public synchronized String toString() {
+        return "BFS cache: " + trees.size() + " tree(s), " + bytes + " bytes, "
+                + hits + " hit(s), " + misses + " miss(es), " + evictions + " eviction(s)";
+    }
+}
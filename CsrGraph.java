@@ -0,0 +1,109 @@
+package demo;
+
+import com.google.common.graph.Graph;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compressed sparse row snapshot of a directed graph.
+ *
+ * Nodes are numbered 0..n-1 in the graph's iteration order. The
+ * successors of node i are outTargets[outOffsets[i] .. outOffsets[i+1]),
+ * and likewise for predecessors with the in arrays, so traversals run
+ * over plain int arrays instead of hashed node sets. The arrays are
+ * shared with callers and must not be modified.
+ */
+public class CsrGraph {
+
+    /** Node object for each id */
+    private final String[] names;
+
+    /** Id of each node */
+    private final Map<String, Integer> ids;
+
+    /** Start of each node's successors in outTargets, plus an end marker */
+    private final int[] outOffsets;
+
+    /** Successor ids, grouped by source */
+    private final int[] outTargets;
+
+    /** Start of each node's predecessors in inSources, plus an end marker */
+    private final int[] inOffsets;
+
+    /** Predecessor ids, grouped by target */
+    private final int[] inSources;
+
+    /** Builds the snapshot from a directed graph */
+    public CsrGraph(Graph<String> graph) {
+        int n = graph.nodes().size();
+        names = new String[n];
+        ids = new HashMap<>(2 * n);
+        int id = 0;
+        for (String node : graph.nodes()) {
+            names[id] = node;
+            ids.put(node, id);
+            id++;
+        }
+
+        outOffsets = new int[n + 1];
+        inOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            outOffsets[i + 1] = outOffsets[i] + graph.outDegree(names[i]);
+            inOffsets[i + 1] = inOffsets[i] + graph.inDegree(names[i]);
+        }
+        outTargets = new int[outOffsets[n]];
+        inSources = new int[inOffsets[n]];
+        for (int i = 0; i < n; i++) {
+            int k = outOffsets[i];
+            for (String successor : graph.successors(names[i])) {
+                outTargets[k++] = ids.get(successor);
+            }
+            k = inOffsets[i];
+            for (String predecessor : graph.predecessors(names[i])) {
+                inSources[k++] = ids.get(predecessor);
+            }
+        }
+    }
+
+    /** Returns the number of nodes */
+    public int nodeCount() {
+        return names.length;
+    }
+
+    /** Returns the number of edges */
+    public int edgeCount() {
+        return outTargets.length;
+    }
+
+    /** Returns the id of a node, or -1 if it is not in the graph */
+    public int idOf(String node) {
+        Integer id = ids.get(node);
+        return id == null ? -1 : id;
+    }
+
+    /** Returns the node with the given id */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /** Returns the successor offsets array (length nodeCount()+1) */
+    public int[] outOffsets() {
+        return outOffsets;
+    }
+
+    /** Returns the successor ids array */
+    public int[] outTargets() {
+        return outTargets;
+    }
+
+    /** Returns the predecessor offsets array (length nodeCount()+1) */
+    public int[] inOffsets() {
+        return inOffsets;
+    }
+
+    /** Returns the predecessor ids array */
+    public int[] inSources() {
+        return inSources;
+    }
+}
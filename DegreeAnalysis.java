@@ -0,0 +1,249 @@
+package demo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+/**
+ * Degree distribution of a directed graph: in-, out- and total-degree
+ * histograms, a discrete power-law fit for each, and the nodes with the
+ * highest in- and out-degree.
+ *
+ * The histograms come from a single parallel pass over the offset
+ * arrays of a {@link CsrGraph}: each chunk of nodes counts into its own
+ * primitive arrays, which are then added together. The power-law exponent is
+ * the maximum-likelihood estimate of Clauset, Shalizi and Newman, with
+ * xmin chosen to minimize the Kolmogorov-Smirnov distance between the
+ * tail and the fitted law.
+ */
+public class DegreeAnalysis {
+
+    /** Nodes per chunk in the parallel counting pass */
+    private static final int CHUNK = 1 << 16;
+
+    /** Smallest tail a power-law fit is attempted on */
+    public static final int MIN_TAIL = 10;
+
+    /** Result of fitting a power law to the tail of a histogram */
+    public static final class PowerLawFit {
+        /** Estimated exponent alpha of P(x) ~ x^-alpha */
+        public final double alpha;
+
+        /** Smallest degree included in the fit */
+        public final int xmin;
+
+        /** Kolmogorov-Smirnov distance between tail and fit */
+        public final double ks;
+
+        /** Number of nodes with degree at least xmin */
+        public final long tailSize;
+
+        /** Constructor records the fit */
+        PowerLawFit(double alpha, int xmin, double ks, long tailSize) {
+            this.alpha = alpha;
+            this.xmin = xmin;
+            this.ks = ks;
+            this.tailSize = tailSize;
+        }
+
+        /** Returns a one-line description of the fit */
+        @Override
+        public String toString() {
+            return String.format("alpha = %.3f for degree >= %d (%d node(s), KS distance %.4f)",
+                                 alpha, xmin, tailSize, ks);
+        }
+    }
+
+    /** The graph that was analyzed */
+    private final CsrGraph graph;
+
+    /** Number of nodes with each in-degree */
+    private final long[] inHistogram;
+
+    /** Number of nodes with each out-degree */
+    private final long[] outHistogram;
+
+    /** Number of nodes with each total (in + out) degree */
+    private final long[] degreeHistogram;
+
+    /** Constructor records the histograms */
+    private DegreeAnalysis(CsrGraph graph, long[] in, long[] out, long[] total) {
+        this.graph = graph;
+        this.inHistogram = in;
+        this.outHistogram = out;
+        this.degreeHistogram = total;
+    }
+
+    /** Builds the three histograms in one parallel pass over the offsets */
+    public static DegreeAnalysis of(CsrGraph graph) {
+        int n = graph.nodeCount();
+        int[] outOffsets = graph.outOffsets();
+        int[] inOffsets = graph.inOffsets();
+        int chunks = (n + CHUNK - 1) / CHUNK;
+
+        long[][] merged = IntStream.range(0, chunks).parallel().mapToObj(c -> {
+            long[] in = new long[1];
+            long[] out = new long[1];
+            long[] total = new long[1];
+            int end = Math.min(n, (c + 1) * CHUNK);
+            for (int v = c * CHUNK; v < end; v++) {
+                int din = inOffsets[v + 1] - inOffsets[v];
+                int dout = outOffsets[v + 1] - outOffsets[v];
+                in = count(in, din);
+                out = count(out, dout);
+                total = count(total, din + dout);
+            }
+            return new long[][] {in, out, total};
+        }).reduce(new long[][] {new long[1], new long[1], new long[1]},
+                  (a, b) -> new long[][] {add(a[0], b[0]), add(a[1], b[1]), add(a[2], b[2])});
+        return new DegreeAnalysis(graph, merged[0], merged[1], merged[2]);
+    }
+
+    /** Increments bin d, growing the histogram if needed */
+    private static long[] count(long[] histogram, int d) {
+        if (d >= histogram.length) {
+            histogram = Arrays.copyOf(histogram, Math.max(d + 1, 2 * histogram.length));
+        }
+        histogram[d]++;
+        return histogram;
+    }
+
+    /** Returns the bin-wise sum of two histograms */
+    private static long[] add(long[] a, long[] b) {
+        long[] sum = Arrays.copyOf(a.length >= b.length ? a : b, Math.max(a.length, b.length));
+        long[] other = a.length >= b.length ? b : a;
+        for (int d = 0; d < other.length; d++) {
+            sum[d] += other[d];
+        }
+        return sum;
+    }
+
+    /** Returns the in-degree histogram: entry d is the number of nodes with in-degree d */
+    public long[] getInHistogram() {
+        return inHistogram.clone();
+    }
+
+    /** Returns the out-degree histogram */
+    public long[] getOutHistogram() {
+        return outHistogram.clone();
+    }
+
+    /** Returns the total-degree histogram */
+    public long[] getDegreeHistogram() {
+        return degreeHistogram.clone();
+    }
+
+    /**
+     * Fits a discrete power law to the tail of a histogram.
+     * Every degree present in the histogram is tried as xmin, as long as
+     * at least MIN_TAIL nodes lie at or above it; for each, alpha is the
+     * approximate maximum-likelihood estimate
+     *   alpha = 1 + n / sum(ln(x / (xmin - 1/2)))
+     * and the xmin whose fit has the smallest KS distance wins.
+     * Returns null if no degree leaves a large enough tail.
+     */
+    public static PowerLawFit fitPowerLaw(long[] histogram) {
+        int top = histogram.length - 1;
+        while (top > 0 && histogram[top] == 0) {
+            top--;
+        }
+
+        // suffix sums give the tail size and sum of ln(x) for any xmin in O(1)
+        long[] tailCount = new long[top + 2];
+        double[] tailLog = new double[top + 2];
+        for (int x = top; x >= 1; x--) {
+            tailCount[x] = tailCount[x + 1] + histogram[x];
+            tailLog[x] = tailLog[x + 1] + histogram[x] * Math.log(x);
+        }
+        int[] present = IntStream.rangeClosed(1, top).filter(x -> histogram[x] > 0).toArray();
+
+        PowerLawFit best = null;
+        for (int i = 0; i < present.length; i++) {
+            int xmin = present[i];
+            long n = tailCount[xmin];
+            if (n < MIN_TAIL) {
+                break;
+            }
+            double alpha = 1 + n / (tailLog[xmin] - n * Math.log(xmin - 0.5));
+
+            // KS distance between the empirical tail CDF and the fitted CDF.
+            // The empirical CDF is flat between present degrees while the
+            // fitted one rises, so the largest gap is at one side of a jump
+            double ks = 0;
+            long seen = 0;
+            for (int j = i; j < present.length; j++) {
+                int x = present[j];
+                double before = (double) seen / n;
+                seen += histogram[x];
+                double after = (double) seen / n;
+                ks = Math.max(ks, Math.abs(before - powerLawCdf(x - 1, xmin, alpha)));
+                ks = Math.max(ks, Math.abs(after - powerLawCdf(x, xmin, alpha)));
+            }
+            if (best == null || ks < best.ks) {
+                best = new PowerLawFit(alpha, xmin, ks, n);
+            }
+        }
+        return best;
+    }
+
+    /** Fraction of a fitted tail at or below degree x, in the continuous approximation */
+    private static double powerLawCdf(int x, int xmin, double alpha) {
+        return 1 - Math.pow((x + 0.5) / (xmin - 0.5), 1 - alpha);
+    }
+
+    /** Returns the k nodes with the highest out-degree, highest first */
+    public List<String> topSenders(int k) {
+        return top(graph.outOffsets(), k);
+    }
+
+    /** Returns the k nodes with the highest in-degree, highest first */
+    public List<String> topReceivers(int k) {
+        return top(graph.inOffsets(), k);
+    }
+
+    /**
+     * Selects the k largest degrees with a size-k min-heap, so only
+     * k nodes are ever ordered instead of sorting all of them.
+     */
+    private List<String> top(int[] offsets, int k) {
+        PriorityQueue<Integer> heap = new PriorityQueue<>(k + 1, (a, b) -> compareDegree(offsets, a, b));
+        for (int v = 0; v < graph.nodeCount(); v++) {
+            if (heap.size() < k) {
+                heap.add(v);
+            } else if (k > 0 && compareDegree(offsets, v, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(v);
+            }
+        }
+        List<String> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            int v = heap.poll();
+            result.add(graph.name(v) + " (" + (offsets[v + 1] - offsets[v]) + ")");
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /** Orders node ids by degree, breaking ties in favor of the lower id */
+    private static int compareDegree(int[] offsets, int a, int b) {
+        int c = Integer.compare(offsets[a + 1] - offsets[a], offsets[b + 1] - offsets[b]);
+        return c != 0 ? c : Integer.compare(b, a);
+    }
+
+    /** Prints the power-law fits and the top-k senders and receivers */
+    public void print(int k) {
+        System.out.println("Out-degree power law: " + describe(fitPowerLaw(outHistogram)));
+        System.out.println("In-degree power law: " + describe(fitPowerLaw(inHistogram)));
+        System.out.println("Total degree power law: " + describe(fitPowerLaw(degreeHistogram)));
+        System.out.println("Top " + k + " senders (out-degree): " + topSenders(k));
+        System.out.println("Top " + k + " receivers (in-degree): " + topReceivers(k));
+    }
+
+    /** Describes a fit, or explains that there was too little data */
+    private static String describe(PowerLawFit fit) {
+        return fit == null ? "not enough nodes to fit" : fit.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package demo;
+
+import com.google.common.graph.Graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Running degree statistics for a directed graph: node and edge counts,
+ * total degree and the node(s) with the maximum degree.
+ *
+ * Degrees only grow while edges are being added, so the maximum can be
+ * kept up to date by looking at the two endpoints of each new edge
+ * instead of rescanning every node.
+ */
+public class DegreeStats {
+
+    /** Number of nodes seen so far */
+    private int numberOfNodes;
+
+    /** Number of edges seen so far */
+    private int numberOfEdges;
+
+    /** Sum of all node degrees (twice the edge count for a simple graph) */
+    private double totalDegree;
+
+    /** Largest degree of any node */
+    private int maxDegree;
+
+    /** Nodes whose degree equals maxDegree, in the order they reached it */
+    private final Set<String> nodesWithMaxDegree = new LinkedHashSet<>();
+
+    /** Computes the statistics of an existing graph with one pass over its nodes */
+    public static DegreeStats of(Graph<String> graph) {
+        DegreeStats stats = new DegreeStats();
+        stats.numberOfNodes = graph.nodes().size();
+        stats.numberOfEdges = graph.edges().size();
+        for (String node : graph.nodes()) {
+            int degree = graph.degree(node);
+            stats.totalDegree += degree;
+            stats.offerMax(node, degree);
+        }
+        return stats;
+    }
+
+    /** Records that a node was added to the graph */
+    public void nodeAdded(Graph<String> graph, String node) {
+        numberOfNodes++;
+        offerMax(node, graph.degree(node));
+    }
+
+    /**
+     * Records that the edge source -> target was added to the graph.
+     * Must be called after the edge is in the graph, and only when
+     * putEdge actually added it.
+     */
+    public void edgeAdded(Graph<String> graph, String source, String target) {
+        numberOfEdges++;
+        totalDegree += 2;
+        offerMax(source, graph.degree(source));
+        offerMax(target, graph.degree(target));
+    }
+
+    /** Updates the max-degree tracking with the current degree of a node */
+    private void offerMax(String node, int degree) {
+        if (degree > maxDegree) {
+            maxDegree = degree;
+            nodesWithMaxDegree.clear();
+            nodesWithMaxDegree.add(node);
+        } else if (degree == maxDegree) {
+            nodesWithMaxDegree.add(node);
+        }
+    }
+
+    /** Returns the number of nodes */
+    public int getNumberOfNodes() {
+        return numberOfNodes;
+    }
+
+    /** Returns the number of edges */
+    public int getNumberOfEdges() {
+        return numberOfEdges;
+    }
+
+    /** Returns the maximum node degree */
+    public int getMaxDegree() {
+        return maxDegree;
+    }
+
+    /** Returns the node(s) with the maximum degree */
+    public List<String> getNodesWithMaxDegree() {
+        return Collections.unmodifiableList(new ArrayList<>(nodesWithMaxDegree));
+    }
+
+    /** Returns the average node degree */
+    public double getAverageDegree() {
+        return totalDegree / numberOfNodes;
+    }
+
+    /** Prints the statistics in the same format as the batch report */
+    public void print() {
+        System.out.println("Number of Nodes: " + numberOfNodes);
+        System.out.println("Number of Edges: " + numberOfEdges);
+        System.out.println("Maximum Node Degree: " + maxDegree);
+        System.out.println("Node(s) with Maximum Degree: " + getNodesWithMaxDegree());
+        System.out.println("Average Node Degree: " + getAverageDegree());
+    }
+}
@@ -0,0 +1,62 @@
+package demo;
+
+import com.google.common.graph.Graph;
+import com.google.common.graph.Graphs;
+import com.google.common.graph.MutableGraph;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashSet;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Extracts the ego network of a node: everything within a few hops of
+ * it, in either edge direction, cut off at a node budget.
+ *
+ * The search is a breadth-first search that stops as soon as the budget
+ * is reached, so its cost depends on the size of the answer rather than
+ * the size of the graph. That keeps expansions fast enough to run from
+ * a mouse click while the full dataset stays in memory.
+ */
+public class EgoNetwork {
+
+    /** Default number of hops from the center */
+    public static final int DEFAULT_RADIUS = 1;
+
+    /** Default maximum number of nodes in an ego network */
+    public static final int DEFAULT_BUDGET = 200;
+
+    /**
+     * Returns the nodes within radius hops of the center, nearest first,
+     * and at most budget of them. The center is always included.
+     */
+    public static <N> Set<N> nodesAround(Graph<N> graph, N center, int radius, int budget) {
+        Set<N> found = new LinkedHashSet<>();
+        found.add(center);
+        Queue<N> frontier = new ArrayDeque<>();
+        frontier.add(center);
+        for (int depth = 0; depth < radius && !frontier.isEmpty(); depth++) {
+            Queue<N> next = new ArrayDeque<>();
+            for (N node : frontier) {
+                for (N neighbor : graph.adjacentNodes(node)) {
+                    if (found.size() >= budget) {
+                        return found;
+                    }
+                    if (found.add(neighbor)) {
+                        next.add(neighbor);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return found;
+    }
+
+    /**
+     * Returns the subgraph induced by the ego network of the center:
+     * its nodes and every edge of the full graph between them.
+     */
+    public static <N> MutableGraph<N> extract(Graph<N> graph, N center, int radius, int budget) {
+        return Graphs.inducedSubgraph(graph, nodesAround(graph, center, radius, budget));
+    }
+}
@@ -3,6 +3,9 @@ package demo;
 import java.util.HashMap;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Objects;
 import java.awt.*;
 import java.awt.geom.*;
@@ -29,17 +32,29 @@ public class GraphDisplay extends JComponent implements ActionListener {
   /** The Network to display */
   Network<Object,Object> net;
 
-  /** Map graph objects to locations */
+  /** Locations, colors, labels and notes of nodes, indexed by node id */
+  NodeAttributeStore nodeAttrs;
+
+  /** Map other graph objects (edges) to locations */
   HashMap<Object,Point> locMap;
   
-  /** Map graph objects to colors */
+  /** Map other graph objects (edges) to colors */
   HashMap<Object,Color> colorMap;
 
-  /** Map graph objects to labels */
+  /** Map other graph objects (edges) to labels */
   HashMap<Object,String> labelMap;
 
-  /** Map graph objects to notes */
+  /** Map other graph objects (edges) to notes */
   HashMap<Object,String> noteMap;
+
+  /** Adjacent node ids of each node id; a null row is rebuilt on the next paint */
+  private int[][] adjacency = new int[0][];
+
+  /** Node count the store and adjacency rows were last brought up to date with */
+  private int syncedNodeCount = -1;
+
+  /** Edge count the store and adjacency rows were last brought up to date with */
+  private int syncedEdgeCount = -1;
   
   /** Window the graph will appear in */
   private JFrame frame;
@@ -50,8 +65,32 @@ public class GraphDisplay extends JComponent implements ActionListener {
   /** Location of current drag */
   Point dragPoint = null;
 
-  /** Remembers node where last mousedown event occurred */
-  Object activeNode;
+  /** Remembers id of node where last mousedown event occurred, -1 if none */
+  int activeNode = -1;
+
+  /** Full graph that clicked nodes are expanded from, or null if disabled */
+  Graph<?> expansionSource;
+
+  /** Hop radius used for click-to-expand */
+  int expansionRadius = EgoNetwork.DEFAULT_RADIUS;
+
+  /** Node budget used for click-to-expand */
+  int expansionBudget = EgoNetwork.DEFAULT_BUDGET;
+
+  /** Shift-click replaces the display with the ego network instead of merging it */
+  public static final int SWAP_MODIFIER = InputEvent.SHIFT_DOWN_MASK;
+
+  /** Distance from the clicked node at which merged nodes are placed */
+  public static final int EXPANSION_RING = 120;
+
+  /** Smallest degree covered by the current degree coloring */
+  int minColoredDegree = 0;
+
+  /** Largest degree covered by the current degree coloring */
+  int maxColoredDegree = 0;
+
+  /** Fraction of nodes below each degree, or null to color on a log scale */
+  double[] degreeQuantiles;
 
   /** Size of canvas */
   public static final Dimension CANVAS_SIZE = new Dimension(1000, 800);
@@ -92,6 +131,20 @@ public class GraphDisplay extends JComponent implements ActionListener {
   /** Constructor starts with empty graph */
   public GraphDisplay(Object g) {
     super();
+    showGraph(g);
+    setMinimumSize(CANVAS_SIZE);
+    setPreferredSize(CANVAS_SIZE);
+    openWindow();
+  }
+
+  /**
+   * Replaces the displayed graph, discarding all layout and styling,
+   * and lays the new one out from scratch.
+   */
+  public void showGraph(Object g) {
+    graph = null;
+    vgraph = null;
+    net = null;
     if (g instanceof Graph) {
       this.graph = (Graph)g;
     } else if (g instanceof ValueGraph) {
@@ -101,6 +154,11 @@ public class GraphDisplay extends JComponent implements ActionListener {
     } else {
       throw new RuntimeException("Attempt to display non-graph object: "+g);
     }
+    nodeAttrs = new NodeAttributeStore();
+    adjacency = new int[0][];
+    syncedNodeCount = -1;
+    syncedEdgeCount = -1;
+    activeNode = -1;
     locMap = new HashMap<Object,Point>();
     assignLocations();
     colorMap = new HashMap<Object,Color>();
@@ -109,9 +167,110 @@ public class GraphDisplay extends JComponent implements ActionListener {
 
     highlightNodeWithMaxDegree();
     colorBasedOnDegree();
-    setMinimumSize(CANVAS_SIZE);
-    setPreferredSize(CANVAS_SIZE);
-    openWindow();
+  }
+
+  /**
+   * Adds the nodes and edges of another graph to the displayed one,
+   * keeping existing layout and styling.  New nodes are placed in a
+   * ring around the anchor node, if it is given.  Only plain Graphs
+   * can be merged; a graph that is not mutable is copied first, so
+   * the caller's graph is only modified if it is a MutableGraph.
+   */
+  public void mergeGraph(Graph<?> sub, Object anchor) {
+    if (graph == null) {
+      throw new UnsupportedOperationException("Only a Graph can have another graph merged in");
+    }
+    if (!(graph instanceof MutableGraph)) {
+      graph = Graphs.copyOf(graph);
+    }
+    MutableGraph<Object> target = (MutableGraph<Object>) graph;
+
+    List<Object> added = new ArrayList<>();
+    for (Object n : sub.nodes()) {
+      if (target.addNode(n)) {
+        added.add(n);
+      }
+    }
+    Set<Object> changed = new HashSet<>(added);
+    for (EndpointPair<?> e : sub.edges()) {
+      if (target.putEdge(e.nodeU(), e.nodeV())) {
+        changed.add(e.nodeU());
+        changed.add(e.nodeV());
+      }
+    }
+
+    if (anchor != null && !added.isEmpty()) {
+      Point center = getLoc(anchor);
+      for (int i = 0; i < added.size(); i++) {
+        double angle = (2 * Math.PI * i) / added.size();
+        int x = (int) (center.x + EXPANSION_RING * Math.cos(angle));
+        int y = (int) (center.y + EXPANSION_RING * Math.sin(angle));
+        setLoc(added.get(i), new Point(Math.max(0, Math.min(CANVAS_SIZE.width, x)),
+                                       Math.max(0, Math.min(CANVAS_SIZE.height, y))));
+      }
+    }
+    updateNodes(changed);
+  }
+
+  /**
+   * Turns on click-to-expand: clicking a node merges its ego network
+   * from the full graph into the display, and shift-clicking replaces
+   * the display with it.
+   */
+  public void enableExpansion(Graph<?> full, int radius, int budget) {
+    expansionSource = full;
+    expansionRadius = radius;
+    expansionBudget = budget;
+  }
+
+  /** Expands the ego network of a node from the full graph */
+  public void expand(Object node, boolean swap) {
+    if (expansionSource != null) {
+      expandFrom(expansionSource, node, swap);
+    }
+  }
+
+  /**
+   * Extracts the ego network of a node from the full graph and shows or
+   * merges it.  When merging, edges of the full graph between the new
+   * nodes and nodes already on screen are added too, so the display
+   * stays the subgraph induced by everything expanded so far.
+   */
+  private <N> void expandFrom(Graph<N> full, Object node, boolean swap) {
+    if (!full.nodes().contains(node)) {
+      return;
+    }
+    // safe: node is one of full's own nodes
+    @SuppressWarnings("unchecked")
+    N center = (N) node;
+
+    long start = System.nanoTime();
+    MutableGraph<N> ego = EgoNetwork.extract(full, center, expansionRadius, expansionBudget);
+    int egoNodes = ego.nodes().size();
+    int egoEdges = ego.edges().size();
+    if (swap) {
+      showGraph(ego);
+    } else {
+      Set<Object> shown = getNodeSet();
+      for (N n : new ArrayList<>(ego.nodes())) {
+        if (shown.contains(n)) {
+          continue;
+        }
+        for (N s : full.successors(n)) {
+          if (shown.contains(s)) {
+            ego.putEdge(n, s);
+          }
+        }
+        for (N p : full.predecessors(n)) {
+          if (shown.contains(p)) {
+            ego.putEdge(p, n);
+          }
+        }
+      }
+      mergeGraph(ego, center);
+    }
+    System.out.println("Expanded node " + node + ": " + egoNodes + " node(s), "
+        + egoEdges + " edge(s) in " + (System.nanoTime() - start) / 1000000 + " ms");
   }
 
   public void highlightNodeWithMaxDegree() {
@@ -120,7 +279,7 @@ public class GraphDisplay extends JComponent implements ActionListener {
 
     // Find the maximum degree among nodes
     for (Object node : getNodeSet()) {
-        int degree = getAdjacentNodes(node).size();
+        int degree = getDegree(node);
         if (degree > maxDegree) {
             maxDegree = degree;
             nodesWithMaxDegree.clear();
@@ -142,7 +301,7 @@ public class GraphDisplay extends JComponent implements ActionListener {
 
     // Find the maximum and minimum degrees among nodes
     for (Object node : getNodeSet()) {
-        int degree = getAdjacentNodes(node).size();
+        int degree = getDegree(node);
         if (degree > maxDegree) {
             maxDegree = degree;
         }
@@ -150,19 +309,109 @@ public class GraphDisplay extends JComponent implements ActionListener {
             minDegree = degree;
         }
     }
+    minColoredDegree = minDegree;
+    maxColoredDegree = maxDegree;
 
     // Set colors based on degree (using a gradient from lighter to darker)
     for (Object node : getNodeSet()) {
-        int degree = getAdjacentNodes(node).size();
+        nodeAttrs.setColor(nodeId(node), degreeColor(getDegree(node)));
+    }
+  }
 
-        // Calculate a color intensity value based on the node's degree
-        // Here, darker colors represent higher degrees using a gradient
-        int colorIntensity = 255 - (int) (255 * ((double) (degree - minDegree) / (maxDegree - minDegree)));
-        Color nodeColor = new Color(colorIntensity, colorIntensity, colorIntensity);
+  /**
+   * Switches degree coloring to a quantile scale: a node's gray level is
+   * the fraction of nodes with a smaller degree, taken from a histogram
+   * of getDegree values (entry d = number of nodes with degree d), such
+   * as DegreeAnalysis's total-degree histogram.  The many low-degree
+   * nodes then spread over the whole range instead of all looking alike.
+   * Degrees past the end of the histogram count as the top.  Passing
+   * null goes back to the log scale.
+   */
+  public void setDegreeHistogram(long[] histogram) {
+    if (histogram == null) {
+      degreeQuantiles = null;
+    } else {
+      long total = 0;
+      for (long count : histogram) {
+        total += count;
+      }
+      double[] below = new double[histogram.length + 1];
+      long seen = 0;
+      for (int d = 0; d < histogram.length; d++) {
+        below[d] = total == 0 ? 0 : (double) seen / total;
+        seen += histogram[d];
+      }
+      below[histogram.length] = 1;
+      degreeQuantiles = below;
+    }
+    colorBasedOnDegree();
+  }
 
-        setColor(node, nodeColor);
+  /** Returns the packed gray level for a degree within the current coloring range */
+  private int degreeColor(int degree) {
+    // Calculate a color intensity value based on the node's degree
+    // Here, darker colors represent higher degrees, on a quantile scale if one
+    // is set, otherwise on a log scale so the heavy tail does not wash out
+    double scaled;
+    if (degreeQuantiles != null) {
+      scaled = degreeQuantiles[Math.min(degree, degreeQuantiles.length - 1)];
+    } else {
+      scaled = Math.log1p(degree - minColoredDegree) / Math.log1p(maxColoredDegree - minColoredDegree);
     }
-}
+    int colorIntensity = 255 - (int) (255 * scaled);
+    return 0xFF000000 | (colorIntensity << 16) | (colorIntensity << 8) | colorIntensity;
+  }
+
+  /**
+   * Recolors nodes whose degree changed after edges were added, and
+   * marks their adjacency rows for rebuilding.  Pass both endpoints of
+   * each new edge, and only the rows of those nodes are rebuilt; if the
+   * graph is changed some other way, the next paint notices the new node
+   * or edge count and rebuilds every row instead.
+   * Only the given nodes are recolored unless one of them falls outside
+   * the current degree range.  The range then grows to at least double
+   * its old top, so a steadily growing graph is recolored in full only
+   * a logarithmic number of times.
+   */
+  public void updateNodes(Collection<?> changed) {
+    invalidateAdjacency(changed);
+    if (getNodeSet().size() >= nodeAttrs.size()) {
+      // the caller has told us what changed; removals still need a full sync
+      syncedNodeCount = getNodeSet().size();
+      syncedEdgeCount = getEdgeCount();
+    }
+    int minDegree = minColoredDegree;
+    int maxDegree = maxColoredDegree;
+    for (Object node : changed) {
+      int degree = getDegree(node);
+      if (degree > maxDegree) {
+        maxDegree = Math.max(degree, 2 * maxColoredDegree);
+      }
+      if (degree < minDegree) {
+        minDegree = degree;
+      }
+    }
+
+    Collection<?> toColor = changed;
+    if (minDegree != minColoredDegree || maxDegree != maxColoredDegree) {
+      minColoredDegree = minDegree;
+      maxColoredDegree = maxDegree;
+      toColor = getNodeSet();
+    }
+    for (Object node : toColor) {
+      nodeAttrs.setColor(nodeId(node), degreeColor(getDegree(node)));
+    }
+  }
+
+  /** Registers the given nodes and drops their adjacency rows */
+  private void invalidateAdjacency(Collection<?> nodes) {
+    for (Object node : nodes) {
+      int id = nodeAttrs.register(node);
+      if (id < adjacency.length) {
+        adjacency[id] = null;
+      }
+    }
+  }
 
   /** Assigns nodes to points around an oval */
   public void assignLocations() {
@@ -213,18 +462,75 @@ public class GraphDisplay extends JComponent implements ActionListener {
 
   /** Returns the node under the given location, or null if none */
   public Object getNode(int x, int y) {
-    Object result = null;
-    for (Object n : getNodeSet()) {
-      //System.out.println("Node "+n+": "+getLoc(n).distance(x, y));
-      if (getLoc(n).distance(x, y) <= NODE_RADIUS) {
-        result = n;
+    int id = getNodeId(x, y);
+    return id < 0 ? null : nodeAttrs.node(id);
+  }
+
+  /** Returns the id of the node under the given location, or -1 if none */
+  int getNodeId(int x, int y) {
+    syncNodes();
+    int result = -1;
+    for (int id = 0; id < nodeAttrs.size(); id++) {
+      ensureLoc(id);
+      float dx = nodeAttrs.x(id) - x;
+      float dy = nodeAttrs.y(id) - y;
+      if (dx * dx + dy * dy <= NODE_RADIUS * NODE_RADIUS) {
+        result = id;
       }
     }      
     return result;
   }
 
-  /** Returns the location of a given graph element */
+  /**
+   * Catches up with changes made to the graph without updateNodes: if
+   * the node or edge count moved, forgets removed nodes, registers new
+   * ones and drops every adjacency row so the next paint rebuilds it.
+   */
+  private void syncNodes() {
+    Set<Object> nodes = getNodeSet();
+    int edgeCount = getEdgeCount();
+    if (nodes.size() == syncedNodeCount && edgeCount == syncedEdgeCount) {
+      return;
+    }
+    if (nodeAttrs.retainAll(nodes)) {
+      activeNode = -1;
+    }
+    for (Object n : nodes) {
+      nodeAttrs.register(n);
+    }
+    Arrays.fill(adjacency, null);
+    syncedNodeCount = nodes.size();
+    syncedEdgeCount = edgeCount;
+  }
+
+  /** Returns the id of a node of the graph, or -1 for any other object */
+  private int nodeId(Object obj) {
+    int id = nodeAttrs.idOf(obj);
+    if (id < 0 && getNodeSet().contains(obj)) {
+      id = nodeAttrs.register(obj);
+    }
+    return id;
+  }
+
+  /** Gives a node a random location if it does not have one yet */
+  private void ensureLoc(int id) {
+    if (!nodeAttrs.hasLoc(id)) {
+      nodeAttrs.setLoc(id, ThreadLocalRandom.current().nextInt(0,CANVAS_SIZE.width),
+                       ThreadLocalRandom.current().nextInt(0,CANVAS_SIZE.height));
+    }
+  }
+
+  /**
+   * Returns the location of a given graph element.  For nodes this is a
+   * copy of the stored location: changing the returned Point does not
+   * move the node, use setLoc for that.
+   */
   public Point getLoc(Object obj) {
+    int id = nodeId(obj);
+    if (id >= 0) {
+      ensureLoc(id);
+      return new Point((int) nodeAttrs.x(id), (int) nodeAttrs.y(id));
+    }
     Point loc = locMap.get(obj);
     if (loc == null) {
       loc = new Point(ThreadLocalRandom.current().nextInt(0,CANVAS_SIZE.width),
@@ -236,35 +542,53 @@ public class GraphDisplay extends JComponent implements ActionListener {
 
   /** Sets the location of a given graph element */
   public void setLoc(Object obj, Point loc) {
-    locMap.put(obj,loc);
+    int id = nodeId(obj);
+    if (id >= 0) {
+      nodeAttrs.setLoc(id, loc.x, loc.y);
+    } else {
+      locMap.put(obj,loc);
+    }
   }
 
   /** Sets multiple node locations at once */
   public void setLocs(HashMap<?,? extends Point> locs) {
-    locMap.putAll(locs);
+    for (Map.Entry<?,? extends Point> entry : locs.entrySet()) {
+      setLoc(entry.getKey(), entry.getValue());
+    }
   }
   
   /** Returns the color of a given graph element */
   public Color getColor(Object obj) {
+    int id = nodeId(obj);
+    if (id >= 0) {
+      return nodeAttrs.hasColor(id) ? nodeAttrs.color(id) : DEFAULT_NODE_COLOR;
+    }
     Color c = colorMap.get(obj);
     if (c == null) {
-      if (getNodeSet().contains(obj)) {
-        c = DEFAULT_NODE_COLOR;
-      } else {
-        c = DEFAULT_EDGE_COLOR;
-      }
+      c = DEFAULT_EDGE_COLOR;
     }
     return c;
   }
 
   /** Sets the color of a given graph element */
   public void setColor(Object obj, Color c) {
-    colorMap.put(obj,c);
+    int id = nodeId(obj);
+    if (id >= 0) {
+      if (c == null) {
+        nodeAttrs.clearColor(id);
+      } else {
+        nodeAttrs.setColor(id, c.getRGB());
+      }
+    } else {
+      colorMap.put(obj,c);
+    }
   }
 
   /** Sets multiple colors at once */
   public void setColors(HashMap<?,? extends Color> colors) {
-    colorMap.putAll(colors);
+    for (Map.Entry<?,? extends Color> entry : colors.entrySet()) {
+      setColor(entry.getKey(), entry.getValue());
+    }
   }
   
   /** Returns the label of a given graph element */
@@ -272,7 +596,8 @@ public class GraphDisplay extends JComponent implements ActionListener {
     if (obj == null) {
       return null;
     }
-    String lbl = labelMap.get(obj);
+    int id = nodeId(obj);
+    String lbl = id >= 0 ? nodeAttrs.label(id) : labelMap.get(obj);
     if (lbl == null) {
       lbl = obj.toString();
     }
@@ -281,17 +606,25 @@ public class GraphDisplay extends JComponent implements ActionListener {
 
   /** Sets the label of a given graph element */
   public void setLabel(Object obj, String lbl) {
-    labelMap.put(obj,lbl);
+    int id = nodeId(obj);
+    if (id >= 0) {
+      nodeAttrs.setLabel(id, lbl);
+    } else {
+      labelMap.put(obj,lbl);
+    }
   }
 
   /** Sets multiple labels at once */
   public void setLabels(HashMap<?,? extends String> labels) {
-    labelMap.putAll(labels);
+    for (Map.Entry<?,? extends String> entry : labels.entrySet()) {
+      setLabel(entry.getKey(), entry.getValue());
+    }
   }
   
   /** Returns the note on a given graph element */
   public String getNote(Object obj) {
-    String note = noteMap.get(obj);
+    int id = nodeId(obj);
+    String note = id >= 0 ? nodeAttrs.note(id) : noteMap.get(obj);
     if (note == null) {
         note = "";
     }
@@ -300,18 +633,28 @@ public class GraphDisplay extends JComponent implements ActionListener {
 
   /** Sets the note on a given graph element */
   public void setNote(Object obj, String note) {
-    noteMap.put(obj,note);
+    int id = nodeId(obj);
+    if (id >= 0) {
+      nodeAttrs.setNote(id, note);
+    } else {
+      noteMap.put(obj,note);
+    }
   }
 
   /** Sets multiple labels at once */
   public void setNotes(HashMap<?,? extends String> notes) {
-    noteMap.putAll(notes);
+    for (Map.Entry<?,? extends String> entry : notes.entrySet()) {
+      setNote(entry.getKey(), entry.getValue());
+    }
   }
   
   /** Reset colors to default */
   public void setNodeColors(Color c) {
-    for (Object n : getNodeSet()) {
-      colorMap.put(n,c);
+    syncNodes();
+    if (c == null) {
+      nodeAttrs.clearColors();
+    } else {
+      nodeAttrs.fillColor(c.getRGB());
     }
   }
 
@@ -379,6 +722,40 @@ public class GraphDisplay extends JComponent implements ActionListener {
     return edges;
   }
   
+  /** returns the number of edges */
+  private int getEdgeCount() {
+    int count;
+    if (graph != null) {
+      count = graph.edges().size();
+    } else if (vgraph != null) {
+      count = vgraph.edges().size();
+    } else if (net != null) {
+      count = net.edges().size();
+    } else {
+      count = 0;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the degree of a node as the graph defines it: in-degree plus
+   * out-degree for directed graphs, the same measure as Main's statistics
+   * and DegreeAnalysis's total-degree histogram.
+   */
+  public int getDegree(Object n) {
+    int degree;
+    if (graph != null) {
+      degree = graph.degree(n);
+    } else if (vgraph != null) {
+      degree = vgraph.degree(n);
+    } else if (net != null) {
+      degree = net.degree(n);
+    } else {
+      degree = 0;
+    }
+    return degree;
+  }
+
   /** returns the node set */
   public Set getAdjacentNodes(Object n) {
     Set edges;
@@ -397,11 +774,11 @@ public class GraphDisplay extends JComponent implements ActionListener {
   /** for drawing arrows
   * see https://stackoverflow.com/questions/2027613/how-to-draw-a-directed-arrow-line-in-java
   */
-  private void drawArrow(Point p1, Point p2, Graphics g) {
-    g.drawLine(p1.x,p1.y,p2.x,p2.y);
+  private void drawArrow(int x1, int y1, int x2, int y2, Graphics g) {
+    g.drawLine(x1,y1,x2,y2);
     tx.setToIdentity();
-    double angle = Math.atan2(p2.y-p1.y, p2.x-p1.x);
-    tx.translate(p2.x-ARROW_RADIUS*Math.cos(angle),p2.y-ARROW_RADIUS*Math.sin(angle));
+    double angle = Math.atan2(y2-y1, x2-x1);
+    tx.translate(x2-ARROW_RADIUS*Math.cos(angle),y2-ARROW_RADIUS*Math.sin(angle));
     tx.rotate((angle-Math.PI/2d));  
 
     Graphics2D g2d = (Graphics2D) g.create();
@@ -440,47 +817,84 @@ public class GraphDisplay extends JComponent implements ActionListener {
     //System.out.println("Edge: "+text);
   }
   
+  /**
+   * Builds the adjacency rows that are missing: all of them after the
+   * graph is first shown or changed behind the display's back, otherwise
+   * only those of new nodes and of nodes passed to updateNodes.
+   */
+  private void syncAdjacency() {
+    syncNodes();
+    for (int id = 0; id < nodeAttrs.size(); id++) {
+      if (id >= adjacency.length) {
+        adjacency = Arrays.copyOf(adjacency, Math.max(nodeAttrs.size(), 2 * adjacency.length));
+      }
+      if (adjacency[id] == null) {
+        Set<?> adjacent = getAdjacentNodes(nodeAttrs.node(id));
+        int[] ids = new int[adjacent.size()];
+        int k = 0;
+        for (Object e : adjacent) {
+          ids[k++] = nodeAttrs.register(e);
+        }
+        adjacency[id] = ids;
+      }
+    }
+  }
+
   /** Draws the graph in a window */
   public void paintComponent(Graphics g) {
     //System.out.println("Entering paintComponent.");
     
-    // get node collection (varies depending on graph type)
-    Set nodes = getNodeSet();
-    //System.out.println("Nodes: "+nodes);
+    // node attributes and adjacency are looked up by id, not by node object
+    syncAdjacency();
+    int count = nodeAttrs.size();
+    for (int id = 0; id < count; id++) {
+      ensureLoc(id);
+    }
+
+    // edge text is only non-empty for value graphs, networks or explicit labels
+    boolean edgeText = vgraph != null || net != null || !labelMap.isEmpty();
     
     // draw edges
-    for (Object n : nodes) {
-      Point loc = getLoc(n);
-      for (Object e : getAdjacentNodes(n)) {
-        Point dloc = getLoc(e);
-        drawArrow(loc,dloc,g);
+    for (int id = 0; id < count; id++) {
+      int x = (int) nodeAttrs.x(id);
+      int y = (int) nodeAttrs.y(id);
+      for (int d : adjacency[id]) {
+        int dx = (int) nodeAttrs.x(d);
+        int dy = (int) nodeAttrs.y(d);
+        drawArrow(x,y,dx,dy,g);
 
         // add text
-        rotateText(getLabel(getEdgeBetween(n,e)),loc,dloc,g);
+        if (edgeText) {
+          rotateText(getLabel(getEdgeBetween(nodeAttrs.node(id),nodeAttrs.node(d))),
+                     new Point(x,y),new Point(dx,dy),g);
+        }
       }
     }
 
     // draw nodes
-    for (Object n : nodes) {
-      Point pos = getLoc(n);
-      g.setColor(getColor(n));
-      g.fillOval(pos.x - NODE_RADIUS, pos.y - NODE_RADIUS,
+    int descent = g.getFontMetrics().getDescent();
+    for (int id = 0; id < count; id++) {
+      int x = (int) nodeAttrs.x(id);
+      int y = (int) nodeAttrs.y(id);
+      g.setColor(nodeAttrs.hasColor(id) ? nodeAttrs.color(id) : DEFAULT_NODE_COLOR);
+      g.fillOval(x - NODE_RADIUS, y - NODE_RADIUS,
               2 * NODE_RADIUS, 2 * NODE_RADIUS);
       g.setColor(Color.black);
-      g.drawOval(pos.x - NODE_RADIUS, pos.y - NODE_RADIUS,
+      g.drawOval(x - NODE_RADIUS, y - NODE_RADIUS,
               2 * NODE_RADIUS, 2 * NODE_RADIUS);
-      String label = getLabel(n);
+      String label = nodeAttrs.label(id);
+      if (label == null) {
+        label = nodeAttrs.node(id).toString();
+      }
       Rectangle2D sbound = g.getFontMetrics().getStringBounds(label, g);
-      int descent = g.getFontMetrics().getDescent();
-      int ascent = g.getFontMetrics().getAscent();
-      g.drawString(label, pos.x - (int) sbound.getWidth() / 2 + labelOffset.x,
-              pos.y + (int) (sbound.getHeight()) / 2 - descent + labelOffset.y);
-      String note = getNote(n);
-      Rectangle2D nbound = g.getFontMetrics().getStringBounds(note, g);
-      descent = g.getFontMetrics().getDescent();
-      ascent = g.getFontMetrics().getAscent();
-      g.drawString(note, pos.x - (int) nbound.getWidth() / 2 + noteOffset.x,
-              pos.y + NODE_RADIUS + (int) (nbound.getHeight()) - descent + noteOffset.y);
+      g.drawString(label, x - (int) sbound.getWidth() / 2 + labelOffset.x,
+              y + (int) (sbound.getHeight()) / 2 - descent + labelOffset.y);
+      String note = nodeAttrs.note(id);
+      if (note != null && !note.isEmpty()) {
+        Rectangle2D nbound = g.getFontMetrics().getStringBounds(note, g);
+        g.drawString(note, x - (int) nbound.getWidth() / 2 + noteOffset.x,
+                y + NODE_RADIUS + (int) (nbound.getHeight()) - descent + noteOffset.y);
+      }
     }
   }
 
@@ -497,27 +911,34 @@ public class GraphDisplay extends JComponent implements ActionListener {
       //System.out.println("Point set: "+dragPoint);
     }
 
+    /** click event handler expands the clicked node, if enabled */
+    public void mouseClicked(MouseEvent e) {
+      int id = getNodeId(e.getX(), e.getY());
+      if (id >= 0) {
+        expand(nodeAttrs.node(id), (e.getModifiersEx() & SWAP_MODIFIER) != 0);
+        repaint();
+      }
+    }
+
     /** Release event handler */
     public void mouseReleased(MouseEvent e) {
       //System.out.println("Point cleared. ");
       dragPoint = null;
-      activeNode = null;
+      activeNode = -1;
     }
 
     /** event handler for drag events */
     public void mouseDragged(MouseEvent e) {
       //System.out.println("p: "+dragPoint+" node: "+activeNode);
-      if (activeNode == null) {
+      if (activeNode < 0) {
         //System.out.println("Getting node");
-        activeNode = getNode(dragPoint.x, dragPoint.y);
+        activeNode = getNodeId(dragPoint.x, dragPoint.y);
       } 
-      Point loc = getLoc(activeNode);
-      loc.x = e.getX();
-      loc.y = e.getY();
-      //System.out.println("loc: "+loc+" "+activeNode);
-      loc = getLoc(activeNode);
-      //System.out.println("loc: "+getLoc(activeNode));
-      repaint();
+      if (activeNode >= 0) {
+        nodeAttrs.setLoc(activeNode, e.getX(), e.getY());
+        //System.out.println("loc: "+getLoc(nodeAttrs.node(activeNode)));
+        repaint();
+      }
     }
   }
 
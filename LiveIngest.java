@@ -0,0 +1,193 @@
+package demo;
+
+import com.google.common.graph.MutableGraph;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.swing.Timer;
+
+/**
+ * Follows a growing edge-list file (or standard input) and applies the
+ * new edges to a graph that is already on screen.
+ *
+ * A background thread reads and parses lines into batches. Batches are
+ * applied on the Swing event thread by a timer, so the graph is never
+ * mutated while it is being painted, and the reader never waits on the
+ * display: every tick drains everything that has piled up since the
+ * last one.
+ *
+ * Every edge of the stream goes into the graph and its statistics. The
+ * display shows a separate graph that only receives edges whose nodes
+ * are in Main's desired range, since the whole stream is far too large
+ * to draw; only the nodes touched by a batch are handed to it.
+ */
+public class LiveIngest {
+
+    /** Source name that means "read from standard input" */
+    public static final String STDIN = "-";
+
+    /** Most edges parsed before a batch is handed over */
+    public static final int BATCH_SIZE = 4096;
+
+    /** Delay between looks at the end of a file that is being tailed */
+    public static final int POLL_MS = 250;
+
+    /** Delay between applying queued batches to the graph */
+    public static final int APPLY_MS = 100;
+
+    /** Minimum delay between two printed progress reports */
+    public static final int REPORT_MS = 2000;
+
+    /** The graph being grown */
+    private final MutableGraph<String> graph;
+
+    /** Statistics kept in step with the graph */
+    private final DegreeStats stats;
+
+    /** Graph on screen, grown with the in-range edges only */
+    private final MutableGraph<String> shown;
+
+    /** Display of the shown graph, or null if none */
+    private final GraphDisplay display;
+
+    /** Parsed batches waiting to be applied on the event thread */
+    private final Queue<List<String[]>> pending = new ConcurrentLinkedQueue<>();
+
+    /** Time of the last printed progress report */
+    private long lastReport;
+
+    /** Edges added since the last printed progress report */
+    private int unreported;
+
+    /**
+     * Constructor ties the ingest to a graph, its statistics, and the
+     * graph shown by the display; the display may be null.
+     */
+    public LiveIngest(MutableGraph<String> graph, DegreeStats stats,
+                      MutableGraph<String> shown, GraphDisplay display) {
+        this.graph = graph;
+        this.stats = stats;
+        this.shown = shown;
+        this.display = display;
+    }
+
+    /**
+     * Starts following the given file, or standard input if the source is
+     * {@link #STDIN}. A file is tailed forever; standard input is read
+     * until it is closed.
+     */
+    public void follow(String source) {
+        Thread reader = new Thread(() -> readLoop(source), "edge-follower");
+        reader.setDaemon(true);
+        reader.start();
+
+        Timer applyTimer = new Timer(APPLY_MS, e -> applyPending());
+        applyTimer.start();
+    }
+
+    /** Reads the source in chunks, splitting it into lines and batches */
+    private void readLoop(String source) {
+        boolean tail = !STDIN.equals(source);
+        try (Reader in = tail ? new FileReader(source) : new InputStreamReader(System.in)) {
+            char[] buf = new char[8192];
+            StringBuilder partial = new StringBuilder();
+            List<String[]> batch = new ArrayList<>();
+            while (true) {
+                int n = in.read(buf);
+                if (n < 0) {
+                    if (!tail) {
+                        // end of stdin: the last line may lack a newline
+                        addLine(partial.toString(), batch);
+                        flush(batch);
+                        return;
+                    }
+                    flush(batch);
+                    batch = new ArrayList<>();
+                    Thread.sleep(POLL_MS);
+                    continue;
+                }
+                int start = 0;
+                for (int i = 0; i < n; i++) {
+                    if (buf[i] == '\n') {
+                        partial.append(buf, start, i - start);
+                        addLine(partial.toString(), batch);
+                        partial.setLength(0);
+                        start = i + 1;
+                        if (batch.size() >= BATCH_SIZE) {
+                            flush(batch);
+                            batch = new ArrayList<>();
+                        }
+                    }
+                }
+                // keep an unfinished line until the writer completes it
+                partial.append(buf, start, n - start);
+                if (!in.ready() && !batch.isEmpty()) {
+                    flush(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Parses one line and adds it to the batch if it is a usable edge */
+    private static void addLine(String line, List<String[]> batch) {
+        String[] edge = Main.parseAnyEdge(line);
+        if (edge != null) {
+            batch.add(edge);
+        }
+    }
+
+    /** Hands a batch over to the event thread */
+    private void flush(List<String[]> batch) {
+        if (!batch.isEmpty()) {
+            pending.add(batch);
+        }
+    }
+
+    /** Applies every queued batch; runs on the event thread */
+    private void applyPending() {
+        Set<Object> changed = new LinkedHashSet<>();
+        List<String[]> batch;
+        while ((batch = pending.poll()) != null) {
+            for (String[] edge : batch) {
+                for (String node : edge) {
+                    if (graph.addNode(node)) {
+                        stats.nodeAdded(graph, node);
+                    }
+                }
+                if (graph.putEdge(edge[0], edge[1])) {
+                    stats.edgeAdded(graph, edge[0], edge[1]);
+                    unreported++;
+                }
+                if (Main.isEdgeInRange(edge) && shown.putEdge(edge[0], edge[1])) {
+                    changed.add(edge[0]);
+                    changed.add(edge[1]);
+                }
+            }
+        }
+        if (display != null && !changed.isEmpty()) {
+            display.updateNodes(changed);
+        }
+
+        // checked on every tick, so the last edges are reported even if no more arrive
+        long now = System.currentTimeMillis();
+        if (unreported > 0 && now - lastReport >= REPORT_MS) {
+            lastReport = now;
+            System.out.println("Ingested " + unreported + " new edge(s)");
+            stats.print();
+            unreported = 0;
+        }
+    }
+}
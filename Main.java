@@ -1,5 +1,6 @@
 package demo;
 
+import com.google.common.graph.Graph;
 import com.google.common.graph.GraphBuilder;
 import com.google.common.graph.MutableGraph;
 // import com.google.common.graph.Traverser;
@@ -12,7 +13,23 @@ import java.awt.Color;
 
 
 public class Main {
+    /** Number of top senders and receivers to report */
+    public static final int TOP_K = 10;
+
     public static MutableGraph<String> createGraphFromData(String filePath) {
+        return loadGraph(filePath, true);
+    }
+
+    /**
+     * Reads every edge of the file, without the node-number window that
+     * createGraphFromData applies, so the whole dataset is in memory.
+     */
+    public static MutableGraph<String> createFullGraphFromData(String filePath) {
+        return loadGraph(filePath, false);
+    }
+
+    /** Reads the edge list, optionally keeping only edges in the desired range */
+    private static MutableGraph<String> loadGraph(String filePath, boolean inRangeOnly) {
         MutableGraph<String> graph = GraphBuilder.directed().build();
 
         try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
@@ -20,33 +37,12 @@ public class Main {
             // int lineCount = 0;
             // while ((line = br.readLine()) != null & lineCount < 200) {
                 while ((line = br.readLine()) != null) {
-                    if (!line.startsWith("#")) {
-                        String[] data = line.trim().split("\\s+"); // Split by any whitespace
-                        String sourceNode = data[0];
-                        String targetNode = data[1];
-                
-                        boolean isValidNodes = isNumberInRange(sourceNode) && isNumberInRange(targetNode);
-                
-                        if (isValidNodes && !sourceNode.equals(targetNode)) {
-                            int sourceNumber = Integer.parseInt(sourceNode);
-                            int targetNumber = Integer.parseInt(targetNode);
-                
-                            // Check if both sourceNumber and targetNumber fall within the range of 1-100
-                            if (sourceNumber >= 0 && sourceNumber <= 100 && targetNumber >= 0 && targetNumber <= 100) {
-                                // Add nodes and edges to the graph if both nodes are in the desired range
-                                graph.addNode(sourceNode);
-                                graph.addNode(targetNode);
-                                graph.putEdge(sourceNode, targetNode);
-                            } else {
-                                // Handle cases where one or both nodes are not in the desired range
-                                // System.out.println("Nodes out of range: " + sourceNode + " -> " + targetNode);
-                                // Skip adding this edge to avoid issues or add appropriate handling
-                            }
-                        } else {
-                            // Handle cases where one or both nodes are not valid or if the sourceNode is equal to targetNode
-                            // System.out.println("Invalid nodes or self-loop edge detected: " + sourceNode + " -> " + targetNode);
-                            // // Skip adding this edge to avoid issues or add appropriate handling
-                        }
+                    String[] edge = inRangeOnly ? parseEdge(line) : parseAnyEdge(line);
+                    if (edge != null) {
+                        // Add nodes and edges to the graph if both nodes are in the desired range
+                        graph.addNode(edge[0]);
+                        graph.addNode(edge[1]);
+                        graph.putEdge(edge[0], edge[1]);
                     }
                 }
             
@@ -55,6 +51,56 @@ public class Main {
         }
         return graph;
     }
+
+    /**
+     * Parses one line of the edge list into a {source, target} pair.
+     * Returns null for comments, malformed lines, self-loops and nodes
+     * outside the desired range, so callers can simply skip them.
+     */
+    public static String[] parseEdge(String line) {
+        String[] edge = parseAnyEdge(line);
+        return edge != null && isEdgeInRange(edge) ? edge : null;
+    }
+
+    /**
+     * Returns true if both nodes of a parsed edge fall in the desired
+     * range, the small window the default display is limited to.
+     */
+    public static boolean isEdgeInRange(String[] edge) {
+        String sourceNode = edge[0];
+        String targetNode = edge[1];
+
+        boolean isValidNodes = isNumberInRange(sourceNode) && isNumberInRange(targetNode);
+
+        if (isValidNodes) {
+            int sourceNumber = Integer.parseInt(sourceNode);
+            int targetNumber = Integer.parseInt(targetNode);
+
+            // Check if both sourceNumber and targetNumber fall within the range of 1-100
+            if (sourceNumber >= 0 && sourceNumber <= 100 && targetNumber >= 0 && targetNumber <= 100) {
+                return true;
+            }
+        }
+        // One or both nodes are not valid or out of range
+        return false;
+    }
+
+    /**
+     * Parses one line of the edge list into a {source, target} pair with
+     * no range check. Returns null for comments, malformed lines and
+     * self-loops.
+     */
+    public static String[] parseAnyEdge(String line) {
+        if (line.startsWith("#")) {
+            return null;
+        }
+        String[] data = line.trim().split("\\s+"); // Split by any whitespace
+        if (data.length < 2 || data[0].equals(data[1])) {
+            return null;
+        }
+        return new String[] {data[0], data[1]};
+    }
+
     private static boolean isNumberInRange(String node) {
         try {
             int number = Integer.parseInt(node);
@@ -64,7 +110,7 @@ public class Main {
         }
     }
 
-    public static Iterable<String> findPathUsingBFS(MutableGraph<String> graph, String startNode, String targetNode) {
+    public static Iterable<String> findPathUsingBFS(Graph<String> graph, String startNode, String targetNode) {
         Queue<List<String>> queue = new LinkedList<>();
         Set<String> visited = new HashSet<>();
         
@@ -94,7 +140,15 @@ public class Main {
     }
 
 
-    public static int findMaxNodeNumber(MutableGraph<String> graph) {
+    /**
+     * Finds a path like findPathUsingBFS, but reuses the search tree of
+     * an earlier query from the same start node when the cache has one.
+     */
+    public static Iterable<String> findPathUsingBFS(BfsCache cache, String startNode, String targetNode) {
+        return cache.path(startNode, targetNode, BfsCache.Direction.OUT);
+    }
+
+    public static int findMaxNodeNumber(Graph<String> graph) {
         int maxNodeNumber = 0;
         for (String node : graph.nodes()) {
             int nodeNumber = Integer.parseInt(node);
@@ -105,42 +159,115 @@ public class Main {
         return maxNodeNumber;
     }
 
+    /**
+     * Starts from an empty graph and keeps adding edges as they are
+     * appended to the file (or written to stdin when the path is "-").
+     * Every edge goes into the graph and the printed statistics; only
+     * edges in the desired range are drawn, so the window stays readable.
+     */
+    public static void follow(String source) {
+        MutableGraph<String> emailGraph = GraphBuilder.directed().build();
+        MutableGraph<String> shownGraph = GraphBuilder.directed().build();
+        DegreeStats stats = DegreeStats.of(emailGraph);
+        GraphDisplay display = new GraphDisplay(shownGraph);
+        new LiveIngest(emailGraph, stats, shownGraph, display).follow(source);
+    }
+
+    /**
+     * Loads the whole dataset once and answers queries over HTTP on
+     * localhost until the process is killed.
+     */
+    public static void serve(String filePath, int port) {
+        // must be set before the first HttpServer in this JVM is created
+        if (System.getProperty(QueryServer.NODELAY_PROPERTY) == null) {
+            System.setProperty(QueryServer.NODELAY_PROPERTY, "true");
+        }
+        try {
+            QueryServer server = new QueryServer(createFullGraphFromData(filePath));
+            server.start(port);
+            System.out.println("Serving queries on http://127.0.0.1:" + server.getPort() + "/");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Loads the whole dataset and displays the ego network of one node.
+     * Clicking a node merges its own ego network in; shift-clicking
+     * switches the display to it.
+     */
+    public static void exploreEgo(String filePath, String center, int radius, int budget) {
+        MutableGraph<String> fullGraph = createFullGraphFromData(filePath);
+        if (!fullGraph.nodes().contains(center)) {
+            System.out.println("Node " + center + " is not in the graph");
+            return;
+        }
+        MutableGraph<String> ego = EgoNetwork.extract(fullGraph, center, radius, budget);
+        System.out.println("Ego network of " + center + ": " + ego.nodes().size() + " node(s), "
+                + ego.edges().size() + " edge(s)");
+        GraphDisplay display = new GraphDisplay(ego);
+        display.enableExpansion(fullGraph, radius, budget);
+    }
+
+    /**
+     * Loads the whole dataset and prints the degree-distribution report
+     * without opening a window.
+     */
+    public static void analyze(String filePath) {
+        MutableGraph<String> fullGraph = createFullGraphFromData(filePath);
+        DegreeStats.of(fullGraph).print();
+        DegreeAnalysis.of(new CsrGraph(fullGraph)).print(TOP_K);
+    }
+
+    /** Returns args[index] as an int, or the default if it is absent */
+    private static int intArg(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+
     public static void main(String[] args) {
         String filePath = "email-EuAll.txt"; // Replace with your file path
+
+        if (args.length >= 2 && args[0].equals("--follow")) {
+            follow(args[1]);
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("--serve")) {
+            serve(filePath, intArg(args, 1, QueryServer.DEFAULT_PORT));
+            return;
+        }
+        if (args.length >= 2 && args[0].equals("--ego")) {
+            exploreEgo(filePath, args[1], intArg(args, 2, EgoNetwork.DEFAULT_RADIUS),
+                    intArg(args, 3, EgoNetwork.DEFAULT_BUDGET));
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("--analyze")) {
+            analyze(filePath);
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("--load-test")) {
+            try {
+                QueryServer.loadTest(intArg(args, 1, QueryServer.DEFAULT_PORT),
+                        intArg(args, 2, 20000), intArg(args, 3, 16));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
         MutableGraph<String> emailGraph = createGraphFromData(filePath);
     
         // Calculating graph properties
-        int numberOfNodes = emailGraph.nodes().size();
-        int numberOfEdges = emailGraph.edges().size();
-    
-        int maxDegree = 0;
-        double totalDegree = 0;
-    
-        List<String> nodesWithMaxDegree = new ArrayList<>();
-    
-        for (String node : emailGraph.nodes()) {
-            int degree = emailGraph.degree(node);
-            totalDegree += degree;
-            if (degree > maxDegree) {
-                maxDegree = degree;
-                nodesWithMaxDegree.clear();
-                nodesWithMaxDegree.add(node);
-            } else if (degree == maxDegree) {
-                nodesWithMaxDegree.add(node);
-            }
-        }
+        DegreeStats stats = DegreeStats.of(emailGraph);
     
-        double averageDegree = totalDegree / numberOfNodes;
+        DegreeAnalysis analysis = DegreeAnalysis.of(new CsrGraph(emailGraph));
     
         // Display or use the computed values as needed
-        System.out.println("Number of Nodes: " + numberOfNodes);
-        System.out.println("Number of Edges: " + numberOfEdges);
-        System.out.println("Maximum Node Degree: " + maxDegree);
-        System.out.println("Node(s) with Maximum Degree: " + nodesWithMaxDegree);
-        System.out.println("Average Node Degree: " + averageDegree);
+        stats.print();
+        analysis.print(TOP_K);
     
         // Create an instance of GraphDisplay and use it to display the graph
         GraphDisplay display = new GraphDisplay(emailGraph);
+        display.setDegreeHistogram(analysis.getDegreeHistogram());
     
         // Example: Find a path between two arbitrary nodes (replace with actual node names)
         // String startNode = "1";
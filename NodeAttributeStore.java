@@ -0,0 +1,268 @@
+package demo;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dense per-node attribute storage for {@link GraphDisplay}.
+ *
+ * Every node gets a small int id the first time it is registered.
+ * Locations, colors, labels and notes then live in parallel arrays
+ * indexed by that id, so the paint loop can walk ids without hashing
+ * node objects or allocating a Point or Color per node. Colors are
+ * stored as indexes into a palette holding one Color per distinct ARGB
+ * value, since a display uses few distinct colors. The node-to-id lookup
+ * is an open-addressing table of plain arrays rather than a HashMap,
+ * which avoids an entry object and a boxed Integer per node.
+ */
+public class NodeAttributeStore {
+
+    /** Initial capacity of the attribute arrays */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Shared pool for label and note strings, so repeats are stored once */
+    private static final Interner<String> STRINGS = Interners.newWeakInterner();
+
+    /** Node object for each id */
+    private Object[] nodes = new Object[INITIAL_CAPACITY];
+
+    /** x coordinate for each id, NaN until a location is set */
+    private float[] xs = new float[INITIAL_CAPACITY];
+
+    /** y coordinate for each id */
+    private float[] ys = new float[INITIAL_CAPACITY];
+
+    /** palette index of the color of each id, meaningful only where colorSet is set */
+    private int[] colors = new int[INITIAL_CAPACITY];
+
+    /** Every distinct color set so far */
+    private final List<Color> palette = new ArrayList<>();
+
+    /** Palette index of each packed ARGB value in the palette */
+    private final Map<Integer, Integer> paletteIndex = new HashMap<>();
+
+    /** ids whose color has been set; any ARGB value, even 0, is a real color */
+    private final BitSet colorSet = new BitSet();
+
+    /** label for each id, null for the default label */
+    private String[] labels = new String[INITIAL_CAPACITY];
+
+    /** note for each id, null for no note */
+    private String[] notes = new String[INITIAL_CAPACITY];
+
+    /** Number of registered nodes */
+    private int size;
+
+    /** Hash table slots holding node objects, null if empty */
+    private Object[] slotKeys = new Object[2 * INITIAL_CAPACITY];
+
+    /** Id of the node in the matching slot */
+    private int[] slotIds = new int[2 * INITIAL_CAPACITY];
+
+    /** Constructor starts with no nodes */
+    public NodeAttributeStore() {
+        Arrays.fill(xs, Float.NaN);
+    }
+
+    /** Returns the number of registered nodes */
+    public int size() {
+        return size;
+    }
+
+    /** Returns the node object with the given id */
+    public Object node(int id) {
+        return nodes[id];
+    }
+
+    /** Returns the id of a node, or -1 if it has not been registered */
+    public int idOf(Object node) {
+        int mask = slotKeys.length - 1;
+        for (int i = spread(node.hashCode()) & mask; slotKeys[i] != null; i = (i + 1) & mask) {
+            if (slotKeys[i].equals(node)) {
+                return slotIds[i];
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the id of a node, registering it first if necessary */
+    public int register(Object node) {
+        int id = idOf(node);
+        if (id >= 0) {
+            return id;
+        }
+        if (size == nodes.length) {
+            grow();
+        }
+        id = size++;
+        nodes[id] = node;
+        insertSlot(node, id);
+        return id;
+    }
+
+    /**
+     * Forgets every node that is not in the given set, keeping the
+     * attributes of the rest. Ids are compacted, so ids handed out
+     * earlier are no longer valid if this returns true.
+     */
+    public boolean retainAll(Set<?> keep) {
+        int kept = 0;
+        for (int id = 0; id < size; id++) {
+            if (!keep.contains(nodes[id])) {
+                continue;
+            }
+            nodes[kept] = nodes[id];
+            xs[kept] = xs[id];
+            ys[kept] = ys[id];
+            colors[kept] = colors[id];
+            colorSet.set(kept, colorSet.get(id));
+            labels[kept] = labels[id];
+            notes[kept] = notes[id];
+            kept++;
+        }
+        if (kept == size) {
+            return false;
+        }
+        Arrays.fill(nodes, kept, size, null);
+        Arrays.fill(xs, kept, size, Float.NaN);
+        colorSet.clear(kept, size);
+        Arrays.fill(labels, kept, size, null);
+        Arrays.fill(notes, kept, size, null);
+        size = kept;
+
+        Arrays.fill(slotKeys, null);
+        for (int id = 0; id < size; id++) {
+            insertSlot(nodes[id], id);
+        }
+        return true;
+    }
+
+    /** Returns true if a location has been set for the id */
+    public boolean hasLoc(int id) {
+        return !Float.isNaN(xs[id]);
+    }
+
+    /** Returns the x coordinate of the id */
+    public float x(int id) {
+        return xs[id];
+    }
+
+    /** Returns the y coordinate of the id */
+    public float y(int id) {
+        return ys[id];
+    }
+
+    /** Sets the location of the id */
+    public void setLoc(int id, float x, float y) {
+        xs[id] = x;
+        ys[id] = y;
+    }
+
+    /** Returns true if a color has been set for the id */
+    public boolean hasColor(int id) {
+        return colorSet.get(id);
+    }
+
+    /** Returns the color of the id; check hasColor first */
+    public Color color(int id) {
+        return palette.get(colors[id]);
+    }
+
+    /** Sets the packed ARGB color of the id */
+    public void setColor(int id, int argb) {
+        colors[id] = paletteIndex(argb);
+        colorSet.set(id);
+    }
+
+    /** Forgets the color of the id, so the default applies again */
+    public void clearColor(int id) {
+        colorSet.clear(id);
+    }
+
+    /** Sets the same color on every registered node */
+    public void fillColor(int argb) {
+        Arrays.fill(colors, 0, size, paletteIndex(argb));
+        colorSet.set(0, size);
+    }
+
+    /** Forgets the color of every registered node */
+    public void clearColors() {
+        colorSet.clear();
+    }
+
+    /** Returns the palette index of a color, adding it to the palette if new */
+    private int paletteIndex(int argb) {
+        Integer index = paletteIndex.get(argb);
+        if (index == null) {
+            index = palette.size();
+            palette.add(new Color(argb, true));
+            paletteIndex.put(argb, index);
+        }
+        return index;
+    }
+
+    /** Returns the label of the id, or null for the default */
+    public String label(int id) {
+        return labels[id];
+    }
+
+    /** Sets the label of the id */
+    public void setLabel(int id, String label) {
+        labels[id] = label == null ? null : STRINGS.intern(label);
+    }
+
+    /** Returns the note of the id, or null if none */
+    public String note(int id) {
+        return notes[id];
+    }
+
+    /** Sets the note of the id */
+    public void setNote(int id, String note) {
+        notes[id] = note == null ? null : STRINGS.intern(note);
+    }
+
+    /** Doubles the attribute arrays and rehashes the id table */
+    private void grow() {
+        int capacity = 2 * nodes.length;
+        nodes = Arrays.copyOf(nodes, capacity);
+        int old = xs.length;
+        xs = Arrays.copyOf(xs, capacity);
+        Arrays.fill(xs, old, capacity, Float.NaN);
+        ys = Arrays.copyOf(ys, capacity);
+        colors = Arrays.copyOf(colors, capacity);
+        labels = Arrays.copyOf(labels, capacity);
+        notes = Arrays.copyOf(notes, capacity);
+
+        slotKeys = new Object[2 * capacity];
+        slotIds = new int[2 * capacity];
+        for (int id = 0; id < size; id++) {
+            insertSlot(nodes[id], id);
+        }
+    }
+
+    /** Puts a node into the first free slot of its probe sequence */
+    private void insertSlot(Object node, int id) {
+        int mask = slotKeys.length - 1;
+        int i = spread(node.hashCode()) & mask;
+        while (slotKeys[i] != null) {
+            i = (i + 1) & mask;
+        }
+        slotKeys[i] = node;
+        slotIds[i] = id;
+    }
+
+    /** Mixes the high bits of a hash code into the low ones */
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
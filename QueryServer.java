@@ -0,0 +1,345 @@
+package demo;
+
+import com.google.common.graph.Graph;
+import com.google.common.graph.ImmutableGraph;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local HTTP server that loads the graph once and answers queries
+ * against it, so each question no longer costs a JVM start, a file
+ * parse and a window.
+ *
+ * The graph is copied into a Guava {@link ImmutableGraph} before the
+ * server starts; that snapshot is safe to share between request
+ * threads without locking. Path, distance and neighborhood queries go
+ * through a {@link BfsCache}: one-off start nodes get a search that
+ * stops as soon as it finds the target, and frequent ones a cached
+ * tree. Every endpoint answers with a small JSON object:
+ *
+ *   /stats
+ *   /degree?node=N
+ *   /neighbors?node=N[&hops=H]
+ *   /path?from=A&to=B
+ *   /distance?from=A&to=B
+ */
+public class QueryServer {
+
+    /** Default port for the server */
+    public static final int DEFAULT_PORT = 8210;
+
+    /** Pending-connection backlog, large enough for the load test */
+    public static final int BACKLOG = 1024;
+
+    /**
+     * JDK property that turns on TCP_NODELAY for HttpServer connections.
+     * Without it, small JSON replies sit out the client's delayed ACK.
+     * The JDK reads it once, when the first HttpServer of the process is
+     * created, so it has to be set before that (Main.serve does this).
+     */
+    public static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    /** Largest hop count accepted by /neighbors */
+    public static final int MAX_HOPS = 6;
+
+    /** Immutable snapshot every request reads from */
+    private final ImmutableGraph<String> graph;
+
+    /** Search trees shared by path, distance and neighborhood queries */
+    private final BfsCache cache;
+
+    /** Statistics computed once when the snapshot is taken */
+    private final DegreeStats stats;
+
+    /** Largest numeric node id, reported so clients can pick query nodes */
+    private final int maxNodeNumber;
+
+    /** The underlying JDK server, once started */
+    private HttpServer server;
+
+    /** Executor that runs request handlers */
+    private ExecutorService executor;
+
+    /** Constructor takes a snapshot of the given graph */
+    public QueryServer(Graph<String> graph) {
+        this.graph = ImmutableGraph.copyOf(graph);
+        this.stats = DegreeStats.of(this.graph);
+        this.cache = new BfsCache(this.graph);
+        this.maxNodeNumber = Main.findMaxNodeNumber(this.graph);
+    }
+
+    /** Starts listening on the loopback interface */
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        server.createContext("/stats", ex -> respond(ex, this::stats));
+        server.createContext("/degree", ex -> respond(ex, this::degree));
+        server.createContext("/neighbors", ex -> respond(ex, this::neighbors));
+        server.createContext("/path", ex -> respond(ex, this::path));
+        server.createContext("/distance", ex -> respond(ex, this::distance));
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /** Stops the server and its request threads */
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /** Returns the port the server is bound to */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Returns a virtual-thread-per-request executor when the running JDK
+     * has one (Java 21+), otherwise a cached platform thread pool.
+     * Looked up reflectively so the project still builds on Java 17.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /** Signals a bad query; turned into an HTTP error response */
+    private static class QueryException extends RuntimeException {
+        /** Serialization version */
+        private static final long serialVersionUID = 1L;
+
+        /** HTTP status to send */
+        final int status;
+
+        /** Constructor records status and message */
+        QueryException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /** A query handler maps the parsed parameters to a JSON body */
+    private interface Query {
+        /** Answers the query */
+        String answer(Map<String, String> params);
+    }
+
+    /** Runs a query and writes its JSON answer or error */
+    private static void respond(HttpExchange ex, Query query) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            body = query.answer(parseQuery(ex.getRequestURI()));
+        } catch (QueryException e) {
+            status = e.status;
+            body = "{\"error\":" + quote(e.getMessage()) + "}";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /** Splits the query string of a URI into a parameter map */
+    private static Map<String, String> parseQuery(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    /** Returns a parameter that must name a node of the graph */
+    private String node(Map<String, String> params, String name) {
+        String node = params.get(name);
+        if (node == null) {
+            throw new QueryException(400, "missing parameter: " + name);
+        }
+        if (!graph.nodes().contains(node)) {
+            throw new QueryException(404, "unknown node: " + node);
+        }
+        return node;
+    }
+
+    /** Answers /stats */
+    private String stats(Map<String, String> params) {
+        return "{\"nodes\":" + stats.getNumberOfNodes()
+                + ",\"edges\":" + stats.getNumberOfEdges()
+                + ",\"maxDegree\":" + stats.getMaxDegree()
+                + ",\"nodesWithMaxDegree\":" + array(stats.getNodesWithMaxDegree())
+                + ",\"averageDegree\":" + stats.getAverageDegree()
+                + ",\"maxNodeNumber\":" + maxNodeNumber
+                + ",\"cacheHits\":" + cache.getHits()
+                + ",\"cacheMisses\":" + cache.getMisses() + "}";
+    }
+
+    /** Answers /degree */
+    private String degree(Map<String, String> params) {
+        String node = node(params, "node");
+        return "{\"node\":" + quote(node)
+                + ",\"inDegree\":" + graph.inDegree(node)
+                + ",\"outDegree\":" + graph.outDegree(node)
+                + ",\"degree\":" + graph.degree(node) + "}";
+    }
+
+    /** Answers /neighbors: nodes reachable in 1..hops outgoing steps */
+    private String neighbors(Map<String, String> params) {
+        String node = node(params, "node");
+        int hops = 1;
+        if (params.containsKey("hops")) {
+            try {
+                hops = Integer.parseInt(params.get("hops"));
+            } catch (NumberFormatException e) {
+                throw new QueryException(400, "bad hops: " + params.get("hops"));
+            }
+            if (hops < 1 || hops > MAX_HOPS) {
+                throw new QueryException(400, "hops must be between 1 and " + MAX_HOPS);
+            }
+        }
+
+        List<String> found = cache.neighborhood(node, hops, BfsCache.Direction.OUT);
+        return "{\"node\":" + quote(node) + ",\"hops\":" + hops + ",\"neighbors\":" + array(found) + "}";
+    }
+
+    /** Answers /path */
+    private String path(Map<String, String> params) {
+        String from = node(params, "from");
+        String to = node(params, "to");
+        Iterable<String> path = Main.findPathUsingBFS(cache, from, to);
+        return "{\"from\":" + quote(from) + ",\"to\":" + quote(to)
+                + ",\"path\":" + (path == null ? "null" : array((List<String>) path)) + "}";
+    }
+
+    /** Answers /distance; -1 means unreachable */
+    private String distance(Map<String, String> params) {
+        String from = node(params, "from");
+        String to = node(params, "to");
+        int distance = cache.distance(from, to, BfsCache.Direction.OUT);
+        return "{\"from\":" + quote(from) + ",\"to\":" + quote(to) + ",\"distance\":" + distance + "}";
+    }
+
+    /** Encodes a string as a JSON string literal */
+    private static String quote(String s) {
+        return quote(new StringBuilder(s.length() + 2), s).toString();
+    }
+
+    /**
+     * Appends a string as a JSON string literal. Node names are plain
+     * numbers, so the common case appends the string whole.
+     */
+    private static StringBuilder quote(StringBuilder sb, String s) {
+        sb.append('"');
+        int i = 0;
+        while (i < s.length() && s.charAt(i) >= 0x20 && s.charAt(i) != '"' && s.charAt(i) != '\\') {
+            i++;
+        }
+        sb.append(s, 0, i);
+        for (; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"');
+    }
+
+    /** Encodes strings as a JSON array */
+    private static String array(Collection<String> items) {
+        StringBuilder sb = new StringBuilder(2 + 10 * items.size()).append('[');
+        for (String item : items) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            quote(sb, item);
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Load generator: sends a mix of random degree, neighbors, path and
+     * distance queries from several client threads and prints the
+     * throughput.  Node ids are drawn from 0..maxNodeNumber as reported
+     * by /stats, so some queries hit unknown nodes, as real ones would.
+     */
+    public static void loadTest(int port, int totalRequests, int clients) throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://127.0.0.1:" + port;
+        String statsBody = client.send(HttpRequest.newBuilder(URI.create(base + "/stats")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        Matcher m = Pattern.compile("\"maxNodeNumber\":(\\d+)").matcher(statsBody);
+        int maxNode = m.find() ? Integer.parseInt(m.group(1)) : 0;
+
+        String[] kinds = {"/degree?node=%d", "/neighbors?node=%d&hops=2",
+                          "/path?from=%d&to=%d", "/distance?from=%d&to=%d"};
+        AtomicInteger remaining = new AtomicInteger(totalRequests);
+        AtomicInteger failures = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < clients; t++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (remaining.getAndDecrement() > 0) {
+                    String kind = kinds[random.nextInt(kinds.length)];
+                    String uri = base + String.format(kind, random.nextInt(maxNode + 1), random.nextInt(maxNode + 1));
+                    try {
+                        int status = client.send(HttpRequest.newBuilder(URI.create(uri)).build(),
+                                HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (status != 200 && status != 404) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (IOException | InterruptedException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("Sent " + totalRequests + " queries from " + clients + " clients in "
+                + String.format("%.2f", seconds) + " s: "
+                + String.format("%.0f", totalRequests / seconds) + " queries/s, "
+                + failures.get() + " failure(s)");
+    }
+}